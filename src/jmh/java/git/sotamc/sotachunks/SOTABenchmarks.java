@@ -0,0 +1,64 @@
+package git.sotamc.sotachunks;
+
+import git.sotamc.sotachunks.instance.SOTAInstance;
+import git.sotamc.sotachunks.supplier.SOTAChunkSupplier;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.world.DimensionType;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+
+/**
+ * Runs every benchmark with the gc profiler, so the allocation rate is reported next to the throughput.
+ * Accepts the usual JMH command line options, e.g. a benchmark name regex.
+ */
+public final class SOTABenchmarks {
+
+    private static boolean initialized;
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Initializes the server managers once per fork, without starting the server.
+     */
+    public static synchronized void init() {
+        if (initialized) return;
+        MinecraftServer.init();
+        initialized = true;
+    }
+
+    public static @NotNull SOTAInstance createInstance() {
+        init();
+        SOTAInstance instance = new SOTAInstance(UUID.randomUUID(), DimensionType.OVERWORLD);
+        instance.setChunkSupplier(new SOTAChunkSupplier());
+        return instance;
+    }
+
+    /**
+     * Fills the chunk the same way as the test server generator: 40 layers of stone.
+     */
+    public static void fillStone(@NotNull Chunk chunk) {
+        synchronized (chunk) {
+            for (int x = 0; x < Chunk.CHUNK_SIZE_X; x++) {
+                for (int z = 0; z < Chunk.CHUNK_SIZE_Z; z++) {
+                    for (int y = 0; y < 40; y++) {
+                        chunk.setBlock(x, y, z, Block.STONE);
+                    }
+                }
+            }
+        }
+    }
+}
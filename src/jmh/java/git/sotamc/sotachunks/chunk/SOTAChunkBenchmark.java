@@ -0,0 +1,79 @@
+package git.sotamc.sotachunks.chunk;
+
+import git.sotamc.sotachunks.SOTABenchmarks;
+import git.sotamc.sotachunks.instance.SOTAInstance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.network.packet.server.play.ChunkDataPacket;
+import net.minestom.server.network.packet.server.play.UpdateLightPacket;
+import net.minestom.server.network.packet.server.play.data.LightData;
+import net.minestom.server.snapshot.ChunkSnapshot;
+import net.minestom.server.snapshot.SnapshotUpdater;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SOTAChunkBenchmark {
+
+    private static final Block[] BLOCKS = {Block.STONE, Block.DIRT, Block.OAK_PLANKS, Block.GLASS};
+
+    private SOTAChunk chunk;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SOTAInstance instance = SOTABenchmarks.createInstance();
+        this.chunk = new SOTAChunk(instance, 0, 0);
+        SOTABenchmarks.fillStone(chunk);
+    }
+
+    @Benchmark
+    public void setBlock() {
+        final int i = cursor++;
+        synchronized (chunk) {
+            chunk.setBlock(i & 15, (i >> 4) & 63, (i >> 10) & 15, BLOCKS[(i >> 14) & 3]);
+        }
+    }
+
+    @Benchmark
+    public Block getBlock() {
+        final int i = cursor++;
+        synchronized (chunk) {
+            return chunk.getBlock(i & 15, (i >> 4) & 63, (i >> 10) & 15);
+        }
+    }
+
+    @Benchmark
+    public void getBlockColumn(Blackhole blackhole) {
+        synchronized (chunk) {
+            for (int y = 0; y < 64; y++) blackhole.consume(chunk.getBlock(7, y, 7));
+        }
+    }
+
+    @Benchmark
+    public ChunkDataPacket createChunkPacket() {
+        return chunk.createChunkPacket();
+    }
+
+    @Benchmark
+    public UpdateLightPacket createLightPacket() {
+        return chunk.createLightPacket();
+    }
+
+    @Benchmark
+    public LightData createLightData() {
+        return chunk.createLightData();
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    @Benchmark
+    public ChunkSnapshot updateSnapshot() {
+        return SnapshotUpdater.update(chunk);
+    }
+}
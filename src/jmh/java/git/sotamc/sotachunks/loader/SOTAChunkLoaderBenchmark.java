@@ -0,0 +1,65 @@
+package git.sotamc.sotachunks.loader;
+
+import git.sotamc.sotachunks.SOTABenchmarks;
+import git.sotamc.sotachunks.chunk.SOTAChunk;
+import git.sotamc.sotachunks.instance.SOTAInstance;
+import net.minestom.server.instance.Chunk;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SOTAChunkLoaderBenchmark {
+
+    // Region fixture of FIXTURE_SIZE x FIXTURE_SIZE stone chunks, generated for each trial
+    private static final int FIXTURE_SIZE = 8;
+
+    private Path worldPath;
+    private SOTAInstance instance;
+    private SOTAChunkLoader loader;
+    private SOTAChunk[] chunks;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.worldPath = Files.createTempDirectory("sotachunks-bench");
+        this.instance = SOTABenchmarks.createInstance();
+        this.loader = new SOTAChunkLoader(worldPath);
+        this.chunks = new SOTAChunk[FIXTURE_SIZE * FIXTURE_SIZE];
+        for (int i = 0; i < chunks.length; i++) {
+            SOTAChunk chunk = new SOTAChunk(instance, i % FIXTURE_SIZE, i / FIXTURE_SIZE);
+            SOTABenchmarks.fillStone(chunk);
+            loader.saveChunk(chunk).join();
+            chunks[i] = chunk;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(worldPath)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public Chunk loadChunk() {
+        final int i = Math.floorMod(cursor++, chunks.length);
+        return loader.loadChunk(instance, i % FIXTURE_SIZE, i / FIXTURE_SIZE).join();
+    }
+
+    @Benchmark
+    public void saveChunk() {
+        final int i = Math.floorMod(cursor++, chunks.length);
+        loader.saveChunk(chunks[i]).join();
+    }
+}
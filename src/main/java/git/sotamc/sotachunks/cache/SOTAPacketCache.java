@@ -0,0 +1,253 @@
+package git.sotamc.sotachunks.cache;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.network.packet.server.ServerPacket;
+import net.minestom.server.world.biomes.Biome;
+import net.minestom.server.utils.binary.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class SOTAPacketCache {
+
+    /* Pre-encoded packets
+        Stores the encoded chunk data and light packets of every chunk of a world, so a static map does
+        not need to build them again on the next start. Entries are keyed by chunk and by a hash of the
+        chunk bytes in its region file, a chunk saved since the entry was written simply misses.
+        The hash also covers the dimension height and the biome registry (ids and names), since the
+        encoded packets contain the biome ids of the running server.
+
+        Entry file (c.<x>.<z>.bin) :
+        (int) MAGIC, (int) FORMAT_VERSION, (int) protocol version, (long) content hash, (boolean) compressed
+        Then twice (chunk data, light) : (int) packet id, (int) raw length, (int) stored length, (byte[]) payload
+
+        Uncompressed payloads are served straight from the mapped file.
+
+        The biome fingerprint is computed on the first hash, biomes are expected to be registered before
+        chunks are loaded. Region files stay open for hashing until close().
+    */
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SOTAPacketCache.class);
+    private static final int MAGIC = 0x534F5441; // SOTA
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 1;
+    private static final int SECTOR_SIZE = 4096;
+
+    private final Path directory;
+    private final boolean compress;
+    private final Map<Path, FileChannel> regionChannels = new ConcurrentHashMap<>();
+    private volatile Long biomeFingerprint;
+
+    public SOTAPacketCache(@NotNull Path directory, boolean compress) {
+        this.directory = directory;
+        this.compress = compress;
+    }
+
+    /**
+     * Creates a cache stored next to the world directory, in {@code <world>-packets}.
+     */
+    public static @NotNull SOTAPacketCache nextTo(@NotNull Path worldPath, boolean compress) {
+        return new SOTAPacketCache(worldPath.resolveSibling(worldPath.getFileName() + "-packets"), compress);
+    }
+
+    /**
+     * Hashes the stored bytes of a chunk in its region file, without decoding it.
+     *
+     * @return the hash, or null if the chunk is not in the region file
+     */
+    public @Nullable Long contentHash(@NotNull Path regionFile, int chunkX, int chunkZ, int minY, int maxY) {
+        try {
+            final FileChannel channel = regionChannel(regionFile);
+            if (channel == null) return null;
+            final ByteBuffer location = ByteBuffer.allocate(4);
+            channel.read(location, 4L * ((chunkX & 31) + (chunkZ & 31) * 32));
+            final int sectorOffset = location.flip().getInt() >>> 8;
+            if (sectorOffset == 0) return null;
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, (long) sectorOffset * SECTOR_SIZE);
+            final int size = length.flip().getInt();
+            if (size <= 0 || size > channel.size()) return null;
+            final ByteBuffer data = ByteBuffer.allocate(size);
+            channel.read(data, (long) sectorOffset * SECTOR_SIZE + 4);
+            CRC32 crc = new CRC32();
+            crc.update(data.flip());
+            // The packets also depend on the dimension height and the biome ids
+            crc.update(ByteBuffer.allocate(16).putInt(minY).putInt(maxY).putLong(biomeFingerprint()).flip());
+            return ((long) size << 32) | crc.getValue();
+        } catch (IOException e) {
+            MinecraftServer.getExceptionManager().handleException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Closes the region files opened to hash chunks.
+     */
+    public void close() {
+        regionChannels.values().removeIf(channel -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                MinecraftServer.getExceptionManager().handleException(e);
+            }
+            return true;
+        });
+    }
+
+    public @Nullable Entry read(int chunkX, int chunkZ, long contentHash) {
+        final Path file = file(chunkX, chunkZ);
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ||
+                    buffer.getInt() != MinecraftServer.PROTOCOL_VERSION || buffer.getLong() != contentHash) {
+                return null;
+            }
+            final boolean compressed = buffer.get() != 0;
+            final EncodedPacket chunkPacket = readPacket(buffer, compressed);
+            final EncodedPacket lightPacket = readPacket(buffer, compressed);
+            return new Entry(chunkPacket, lightPacket);
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable packet cache entry " + file, e);
+            return null;
+        }
+    }
+
+    public @NotNull CompletableFuture<Void> write(int chunkX, int chunkZ, long contentHash,
+                                                  @NotNull ServerPacket chunkPacket, @NotNull ServerPacket lightPacket) {
+        // Encode on the caller thread, the packets may not be safe to share
+        final byte[] chunkPayload = encode(chunkPacket);
+        final byte[] lightPayload = encode(lightPacket);
+        return CompletableFuture.runAsync(() -> {
+            final byte[] storedChunk = compress ? deflate(chunkPayload) : chunkPayload;
+            final byte[] storedLight = compress ? deflate(lightPayload) : lightPayload;
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 24 + storedChunk.length + storedLight.length);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(MinecraftServer.PROTOCOL_VERSION)
+                    .putLong(contentHash).put((byte) (compress ? 1 : 0));
+            buffer.putInt(chunkPacket.getId()).putInt(chunkPayload.length).putInt(storedChunk.length).put(storedChunk);
+            buffer.putInt(lightPacket.getId()).putInt(lightPayload.length).putInt(storedLight.length).put(storedLight);
+            try {
+                Files.createDirectories(directory);
+                // Write then move so a concurrent start never maps a partial entry
+                final Path file = file(chunkX, chunkZ);
+                final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+                Files.write(temp, buffer.array());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.error("Failed to cache packets of chunk " + chunkX + ", " + chunkZ, e);
+            }
+        });
+    }
+
+    private @Nullable FileChannel regionChannel(Path regionFile) throws IOException {
+        final FileChannel channel = regionChannels.get(regionFile);
+        if (channel != null && channel.isOpen()) return channel;
+        if (!Files.exists(regionFile)) return null;
+        synchronized (regionChannels) {
+            final FileChannel current = regionChannels.get(regionFile);
+            if (current != null && current.isOpen()) return current;
+            final FileChannel opened = FileChannel.open(regionFile, StandardOpenOption.READ);
+            regionChannels.put(regionFile, opened);
+            return opened;
+        }
+    }
+
+    private long biomeFingerprint() {
+        Long fingerprint = this.biomeFingerprint;
+        if (fingerprint == null) {
+            CRC32 crc = new CRC32();
+            final ByteBuffer id = ByteBuffer.allocate(4);
+            MinecraftServer.getBiomeManager().unmodifiableCollection().stream()
+                    .sorted(Comparator.comparingInt(Biome::id))
+                    .forEach(biome -> {
+                        crc.update(id.clear().putInt(biome.id()).flip());
+                        crc.update(biome.name().asString().getBytes(StandardCharsets.UTF_8));
+                    });
+            fingerprint = crc.getValue();
+            this.biomeFingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    private Path file(int chunkX, int chunkZ) {
+        return directory.resolve("c." + chunkX + "." + chunkZ + ".bin");
+    }
+
+    private static EncodedPacket readPacket(ByteBuffer buffer, boolean compressed) throws DataFormatException {
+        final int id = buffer.getInt();
+        final int rawLength = buffer.getInt();
+        final int storedLength = buffer.getInt();
+        final ByteBuffer stored = buffer.slice(buffer.position(), storedLength);
+        buffer.position(buffer.position() + storedLength);
+        if (!compressed) return new EncodedPacket(id, stored);
+
+        final byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            if (inflater.inflate(raw) != rawLength) throw new DataFormatException("Truncated packet payload");
+        } finally {
+            inflater.end();
+        }
+        return new EncodedPacket(id, ByteBuffer.wrap(raw));
+    }
+
+    private static byte[] encode(ServerPacket packet) {
+        BinaryWriter writer = new BinaryWriter();
+        packet.write(writer);
+        return writer.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            final ByteBuffer output = ByteBuffer.allocate(payload.length + (payload.length >> 10) + 64);
+            while (!deflater.finished()) {
+                if (!output.hasRemaining()) throw new IllegalStateException("Deflated payload larger than expected");
+                deflater.deflate(output);
+            }
+            return Arrays.copyOf(output.array(), output.position());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public record Entry(@NotNull EncodedPacket chunkPacket, @NotNull EncodedPacket lightPacket) {
+    }
+
+    /**
+     * A packet whose body has already been encoded, written as is.
+     */
+    public record EncodedPacket(int id, @NotNull ByteBuffer payload) implements ServerPacket {
+        @Override
+        public void write(@NotNull BinaryWriter writer) {
+            writer.write(payload.duplicate());
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package git.sotamc.sotachunks.chunk;
 
 import com.extollit.gaming.ai.path.model.ColumnarOcclusionFieldList;
+import git.sotamc.sotachunks.cache.SOTAPacketCache;
+import git.sotamc.sotachunks.instance.SOTAInstance;
+import git.sotamc.sotachunks.metrics.SOTAHistogram;
+import git.sotamc.sotachunks.metrics.SOTAMetrics;
+import git.sotamc.sotachunks.sender.SOTAChunkSender;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Point;
@@ -14,6 +19,7 @@ import net.minestom.server.instance.Section;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.instance.block.BlockHandler;
 import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.ServerPacket;
 import net.minestom.server.network.packet.server.play.ChunkDataPacket;
 import net.minestom.server.network.packet.server.play.UpdateLightPacket;
 import net.minestom.server.network.packet.server.play.data.ChunkData;
@@ -60,8 +66,14 @@ public class SOTAChunk extends Chunk {
         Local:
         (List<Section> sections : A list of the sections in the chunk. Can be empty.
         (long) lastChangeTime : Time since last block update.
+        (SOTAPacketCache) packetCache : Persisted packet cache of the world, until the first modification.
+        (SOTAPacketCache.Entry) persistedPackets : Packets read from the persisted cache, null if missing or stale.
     */
 
+    private static final SOTAHistogram PACKET_REBUILD_TIME = SOTAMetrics.global().histogram("chunk.packet.rebuild");
+    private static final SOTAHistogram LIGHT_REBUILD_TIME = SOTAMetrics.global().histogram("chunk.light.rebuild");
+    private static final SOTAHistogram TICK_TIME = SOTAMetrics.global().histogram("chunk.tick");
+
     // Local Variables
     @UnknownNullability
     private List<Section> sections;
@@ -72,9 +84,13 @@ public class SOTAChunk extends Chunk {
 
     private long lastChange;
     @SuppressWarnings("UnstableApiUsage")
-    private final CachedPacket chunkCache = new CachedPacket(this::createChunkPacket);
+    private final CachedPacket chunkCache = new CachedPacket(this::chunkPacket);
     @SuppressWarnings("UnstableApiUsage")
-    private final CachedPacket lightCache = new CachedPacket(this::createLightPacket);
+    private final CachedPacket lightCache = new CachedPacket(this::lightPacket);
+
+    private @Nullable SOTAPacketCache packetCache;
+    private long contentHash;
+    private @Nullable SOTAPacketCache.Entry persistedPackets;
 
     public SOTAChunk(@NotNull Instance instance, int chunkX, int chunkZ) {
         super(instance, chunkX, chunkZ, true);
@@ -88,6 +104,7 @@ public class SOTAChunk extends Chunk {
     public void setBlock(int x, int y, int z, @NotNull Block block) {
         assertLock();
         this.lastChange = System.currentTimeMillis();
+        detachPacketCache();
         this.chunkCache.invalidate();
         this.lightCache.invalidate();
         // Update pathfinder
@@ -120,6 +137,7 @@ public class SOTAChunk extends Chunk {
     @Override
     public void setBiome(int x, int y, int z, @NotNull Biome biome) {
         assertLock();
+        detachPacketCache();
         this.chunkCache.invalidate();
         Section section = getSectionAt(y);
         section.biomePalette().set(
@@ -142,6 +160,7 @@ public class SOTAChunk extends Chunk {
     @Override
     public void tick(long time) {
         if (tickableMap.isEmpty()) return;
+        final long start = System.nanoTime();
         tickableMap.int2ObjectEntrySet().fastForEach(entry -> {
             final int index = entry.getIntKey();
             final Block block = entry.getValue();
@@ -150,6 +169,7 @@ public class SOTAChunk extends Chunk {
             final Point blockPosition = ChunkUtils.getBlockPosition(index, chunkX, chunkZ);
             handler.tick(new BlockHandler.Tick(block, instance, blockPosition));
         });
+        TICK_TIME.recordSince(start);
     }
 
     @SuppressWarnings("UnstableApiUsage")
@@ -193,14 +213,64 @@ public class SOTAChunk extends Chunk {
     @Override
     public void sendChunk(@NotNull Player player) {
         if (!isLoaded()) return;
-        player.sendPacket(chunkCache);
+        final SOTAChunkSender sender = getSender();
+        if (sender != null) {
+            sender.queueChunk(player, this);
+        } else {
+            player.sendPacket(chunkCache);
+        }
     }
 
     @SuppressWarnings("UnstableApiUsage")
     @Override
     public void sendChunk() {
         if (!isLoaded()) return;
-        sendPacketToViewers(chunkCache);
+        final SOTAChunkSender sender = getSender();
+        if (sender != null) {
+            for (Player viewer : getViewers()) sender.queueChunk(viewer, this);
+        } else {
+            sendPacketToViewers(chunkCache);
+        }
+    }
+
+    /**
+     * Sends the light of this chunk to the player, merged with the chunk data if it is still waiting to be sent.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public void sendLight(@NotNull Player player) {
+        if (!isLoaded()) return;
+        final SOTAChunkSender sender = getSender();
+        if (sender != null) {
+            sender.queueLight(player, this);
+        } else {
+            player.sendPacket(lightCache);
+        }
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    public void sendLight() {
+        if (!isLoaded()) return;
+        final SOTAChunkSender sender = getSender();
+        if (sender != null) {
+            for (Player viewer : getViewers()) sender.queueLight(viewer, this);
+        } else {
+            sendPacketToViewers(lightCache);
+        }
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    public @NotNull CachedPacket getChunkPacket() {
+        return chunkCache;
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    public @NotNull CachedPacket getLightPacket() {
+        return lightCache;
+    }
+
+    private @Nullable SOTAChunkSender getSender() {
+        if (!(instance instanceof SOTAInstance sotaInstance)) return null;
+        return sotaInstance.getChunkSender();
     }
 
     @Override
@@ -211,14 +281,59 @@ public class SOTAChunk extends Chunk {
         return chunk;
     }
 
+    @SuppressWarnings("UnstableApiUsage")
     @Override
     public void reset() {
         for (Section section : sections) section.clear();
         this.entries.clear();
+        detachPacketCache();
+        this.chunkCache.invalidate();
+        this.lightCache.invalidate();
+    }
+
+    /**
+     * Serves the packets of this chunk from the persisted cache until it is modified. Must be called once the chunk
+     * content matches the content hash, a missing or stale entry is written on the first send.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public synchronized void attachPacketCache(@NotNull SOTAPacketCache packetCache, long contentHash) {
+        this.packetCache = packetCache;
+        this.contentHash = contentHash;
+        this.persistedPackets = packetCache.read(chunkX, chunkZ, contentHash);
+        this.chunkCache.invalidate();
+        this.lightCache.invalidate();
+    }
+
+    private void detachPacketCache() {
+        this.packetCache = null;
+        this.persistedPackets = null;
+    }
+
+    private synchronized @NotNull ServerPacket chunkPacket() {
+        final SOTAPacketCache.Entry persisted = persistedPackets;
+        if (persisted != null) return persisted.chunkPacket();
+        final long start = System.nanoTime();
+        final ChunkDataPacket packet = createChunkPacket();
+        PACKET_REBUILD_TIME.recordSince(start);
+        if (packetCache != null) {
+            packetCache.write(chunkX, chunkZ, contentHash, packet, createLightPacket());
+            // Written once, the next start reads it
+            this.packetCache = null;
+        }
+        return packet;
+    }
+
+    private synchronized @NotNull ServerPacket lightPacket() {
+        final SOTAPacketCache.Entry persisted = persistedPackets;
+        if (persisted != null) return persisted.lightPacket();
+        final long start = System.nanoTime();
+        final UpdateLightPacket packet = createLightPacket();
+        LIGHT_REBUILD_TIME.recordSince(start);
+        return packet;
     }
 
     @SuppressWarnings("UnstableApiUsage")
-    private synchronized @NotNull ChunkDataPacket createChunkPacket() {
+    synchronized @NotNull ChunkDataPacket createChunkPacket() {
         final NBTCompound heightmapsNBT;
         // TODO: don't hardcode heightmaps
         // Heightmap
@@ -245,11 +360,11 @@ public class SOTAChunk extends Chunk {
                 createLightData());
     }
 
-    private synchronized @NotNull UpdateLightPacket createLightPacket() {
+    synchronized @NotNull UpdateLightPacket createLightPacket() {
         return new UpdateLightPacket(chunkX, chunkZ, createLightData());
     }
 
-    private LightData createLightData() {
+    LightData createLightData() {
         BitSet skyMask = new BitSet();
         BitSet blockMask = new BitSet();
         BitSet emptySkyMask = new BitSet();
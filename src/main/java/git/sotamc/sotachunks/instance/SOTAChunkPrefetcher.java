@@ -0,0 +1,174 @@
+package git.sotamc.sotachunks.instance;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.minestom.server.utils.chunk.ChunkUtils.getChunkCoordinate;
+import static net.minestom.server.utils.chunk.ChunkUtils.getChunkIndex;
+
+/**
+ * Loads the chunks a moving player is about to see before they enter its view distance.
+ * <p>
+ * Only accessed from the instance tick, except for the set of loads in flight.
+ */
+final class SOTAChunkPrefetcher {
+
+    /* Prediction
+        The player velocity is an exponential moving average of its position delta between two ticks,
+        since client movement packets do not line up with server ticks. The view square around the
+        position the player will reach in lookaheadTicks is compared with its current view square, and
+        the missing chunks are queued nearest first.
+        Turning (heading moving more than MAX_HEADING_CHANGE away from the heading the queue was built for)
+        or stopping for SUSTAIN_TICKS in a row, or teleporting, cancels the queued chunks of the player by bumping its generation.
+    */
+
+    private static final double MIN_SPEED = 0.3; // Blocks per tick, just above sprinting (about 0.28)
+    private static final double MAX_SPEED = 64; // Anything faster is a teleport
+    private static final double MAX_HEADING_CHANGE = Math.cos(Math.toRadians(30));
+    private static final int MAX_QUEUED = 4096;
+    private static final double SMOOTHING = 0.25; // Weight of the latest tick in the average velocity
+    private static final int SUSTAIN_TICKS = 10;
+
+    private final Instance instance;
+    private final Map<Player, Track> tracks = new HashMap<>();
+    private final PriorityQueue<Request> queue = new PriorityQueue<>(Comparator.comparingDouble(Request::distance));
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private int loadsPerTick;
+    private int maxInFlight;
+    private int lookaheadTicks;
+
+    SOTAChunkPrefetcher(@NotNull Instance instance, int loadsPerTick, int maxInFlight, int lookaheadTicks) {
+        this.instance = instance;
+        this.loadsPerTick = loadsPerTick;
+        this.maxInFlight = maxInFlight;
+        this.lookaheadTicks = lookaheadTicks;
+    }
+
+    void tick() {
+        final Set<Player> players = instance.getPlayers();
+        tracks.entrySet().removeIf(entry -> {
+            if (players.contains(entry.getKey())) return false;
+            entry.getValue().cancel();
+            return true;
+        });
+        for (Player player : players) {
+            track(player);
+        }
+        drain();
+    }
+
+    private void track(@NotNull Player player) {
+        final Pos position = player.getPosition();
+        final Track track = tracks.get(player);
+        if (track == null) {
+            tracks.put(player, new Track(position));
+            return;
+        }
+        final double dx = position.x() - track.position.x();
+        final double dz = position.z() - track.position.z();
+        track.position = position;
+        if (dx * dx + dz * dz > MAX_SPEED * MAX_SPEED) {
+            // Teleported
+            track.velocityX = 0;
+            track.velocityZ = 0;
+            track.cancel();
+            return;
+        }
+        track.velocityX += (dx - track.velocityX) * SMOOTHING;
+        track.velocityZ += (dz - track.velocityZ) * SMOOTHING;
+        final double speed = Math.sqrt(track.velocityX * track.velocityX + track.velocityZ * track.velocityZ);
+        if (speed < MIN_SPEED) {
+            // Walking or standing still
+            if (++track.stoppedTicks == SUSTAIN_TICKS) track.cancel();
+            return;
+        }
+        track.stoppedTicks = 0;
+        final double headingX = track.velocityX / speed;
+        final double headingZ = track.velocityZ / speed;
+        // Compared with the heading the queue was built for, so a turn made over several ticks adds up
+        if (headingX * track.headingX + headingZ * track.headingZ < MAX_HEADING_CHANGE) {
+            if (++track.turningTicks < SUSTAIN_TICKS && track.target != Long.MIN_VALUE) return;
+            track.cancel();
+            track.headingX = headingX;
+            track.headingZ = headingZ;
+        }
+        track.turningTicks = 0;
+
+        final int viewDistance = MinecraftServer.getChunkViewDistance();
+        final double lookahead = Math.min(speed * lookaheadTicks, viewDistance * 16);
+        final int chunkX = getChunkCoordinate(position.x());
+        final int chunkZ = getChunkCoordinate(position.z());
+        final int targetX = getChunkCoordinate(position.x() + headingX * lookahead);
+        final int targetZ = getChunkCoordinate(position.z() + headingZ * lookahead);
+        final long target = getChunkIndex(targetX, targetZ);
+        if (target == track.target && track.target != Long.MIN_VALUE) return;
+        track.target = target;
+
+        // Queue the chunks of the future view square which are not in the current one
+        for (int x = targetX - viewDistance; x <= targetX + viewDistance; x++) {
+            for (int z = targetZ - viewDistance; z <= targetZ + viewDistance; z++) {
+                if (Math.abs(x - chunkX) <= viewDistance && Math.abs(z - chunkZ) <= viewDistance) continue;
+                if (instance.isChunkLoaded(x, z)) continue;
+                final double distX = x * 16 + 8 - position.x();
+                final double distZ = z * 16 + 8 - position.z();
+                queue.add(new Request(track, track.generation, x, z, distX * distX + distZ * distZ));
+            }
+        }
+    }
+
+    private void drain() {
+        int loads = 0;
+        while (loads < loadsPerTick && inFlight.size() < maxInFlight) {
+            final Request request = queue.poll();
+            if (request == null) break;
+            if (request.generation != request.track.generation) continue; // Cancelled
+            final long index = getChunkIndex(request.chunkX, request.chunkZ);
+            if (instance.isChunkLoaded(request.chunkX, request.chunkZ) || !inFlight.add(index)) continue;
+            loads++;
+            instance.loadChunk(request.chunkX, request.chunkZ)
+                    .whenComplete((chunk, throwable) -> inFlight.remove(index));
+        }
+        // Cancelled requests are only skipped when polled, purge them once in a while
+        if (queue.size() > MAX_QUEUED) queue.removeIf(request -> request.generation != request.track.generation);
+    }
+
+    void setLoadsPerTick(int loadsPerTick) {
+        this.loadsPerTick = loadsPerTick;
+    }
+
+    void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    void setLookaheadTicks(int lookaheadTicks) {
+        this.lookaheadTicks = lookaheadTicks;
+    }
+
+    private static final class Track {
+        private Pos position;
+        private double velocityX, velocityZ;
+        private double headingX, headingZ;
+        private int stoppedTicks, turningTicks;
+        private long target = Long.MIN_VALUE;
+        private int generation;
+
+        private Track(Pos position) {
+            this.position = position;
+        }
+
+        private void cancel() {
+            this.generation++;
+            this.target = Long.MIN_VALUE;
+        }
+    }
+
+    private record Request(Track track, int generation, int chunkX, int chunkZ, double distance) {
+    }
+}
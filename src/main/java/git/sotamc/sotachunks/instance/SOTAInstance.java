@@ -1,21 +1,272 @@
 package git.sotamc.sotachunks.instance;
 
+import git.sotamc.sotachunks.loader.SOTAChunkLoader;
+import git.sotamc.sotachunks.sender.SOTAChunkSender;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.instance.InstanceChunkLoadEvent;
+import net.minestom.server.instance.Chunk;
 import net.minestom.server.instance.IChunkLoader;
 import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.Section;
+import net.minestom.server.instance.palette.Palette;
 import net.minestom.server.world.DimensionType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static net.minestom.server.utils.chunk.ChunkUtils.getChunkIndex;
 
 public class SOTAInstance extends InstanceContainer {
 
+    /* Chunk residency
+        Chunks are kept in memory until the instance goes over its chunk budget (maxChunks) or its
+        memory budget (maxChunkBytes). When that happens, the least recently used chunks without
+        viewers are unloaded, saving them first if they changed since they were last saved.
+        Chunks read by a SOTAChunkLoader are clean once loaded, any other chunk (generated, or read by
+        another loader) is considered dirty until the instance saves it. Dirty chunks are saved off the
+        tick thread, at most MAX_SAVES_PER_PASS per eviction pass.
+        A budget of 0 disables that limit.
+
+        (Long2LongMap) lastAccess : Last time (ms) a chunk had viewers or was modified, key = ChunkUtils#getChunkIndex.
+        (Long2LongMap) lastSave : Chunk change time at which the chunk was last known to be saved.
+        (LongSet) saving : Chunks being saved before being unloaded.
+    */
+
+    private static final int DEFAULT_EVICTION_INTERVAL = 20;
+    private static final int MAX_SAVES_PER_PASS = 8;
+    private static final int DEFAULT_PREFETCH_IN_FLIGHT = 16;
+    private static final int DEFAULT_PREFETCH_LOOKAHEAD = 40;
+
+    private final Long2LongMap lastAccess = new Long2LongOpenHashMap();
+    private final Long2LongMap lastSave = new Long2LongOpenHashMap();
+    private final LongSet saving = new LongOpenHashSet();
+
+    private volatile int maxChunks;
+    private volatile long maxChunkBytes;
+    private volatile int evictionInterval = DEFAULT_EVICTION_INTERVAL;
+    private int ticksSinceEviction;
+
+    private final SOTAChunkPrefetcher prefetcher = new SOTAChunkPrefetcher(this,
+            0, DEFAULT_PREFETCH_IN_FLIGHT, DEFAULT_PREFETCH_LOOKAHEAD);
+    private volatile int prefetchPerTick;
+
+    private final SOTAChunkSender chunkSender = new SOTAChunkSender(this, 0);
+
     @SuppressWarnings("UnstableApiUsage")
     public SOTAInstance(@NotNull UUID uniqueId, @NotNull DimensionType dimensionType, @Nullable IChunkLoader loader) {
         super(uniqueId, dimensionType, loader);
+        eventNode().addListener(InstanceChunkLoadEvent.class, this::onChunkLoad);
     }
 
     public SOTAInstance(@NotNull UUID uniqueId, @NotNull DimensionType dimensionType) {
         super(uniqueId, dimensionType);
+        eventNode().addListener(InstanceChunkLoadEvent.class, this::onChunkLoad);
+    }
+
+    @Override
+    public void tick(long time) {
+        super.tick(time);
+        if (prefetchPerTick > 0) prefetcher.tick();
+        chunkSender.tick();
+        if (maxChunks <= 0 && maxChunkBytes <= 0) return;
+        if (++ticksSinceEviction < evictionInterval) return;
+        this.ticksSinceEviction = 0;
+        evictChunks();
+    }
+
+    /**
+     * Unloads the least recently used chunks without viewers until the instance fits in its budgets.
+     * At most {@link #MAX_SAVES_PER_PASS} dirty chunks are saved per call, the rest is left to the next one.
+     */
+    public void evictChunks() {
+        final List<Chunk> unloads = new ArrayList<>();
+        final List<Chunk> saves = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            final List<Chunk> candidates = new ArrayList<>();
+            int chunkCount = 0;
+            long chunkBytes = 0;
+            // Refresh the recency of every loaded chunk, chunks being saved are already on their way out
+            for (Chunk chunk : getChunks()) {
+                if (!chunk.isLoaded()) continue;
+                final long index = getChunkIndex(chunk);
+                if (saving.contains(index)) continue;
+                final long lastChange = chunk.getLastChangeTime();
+                long access = Math.max(lastAccess.getOrDefault(index, now), lastChange);
+                if (!chunk.getViewers().isEmpty()) {
+                    access = now;
+                } else {
+                    candidates.add(chunk);
+                }
+                lastAccess.put(index, access);
+                chunkCount++;
+                if (maxChunkBytes > 0) chunkBytes += estimateChunkBytes(chunk);
+            }
+            if (!isOverBudget(chunkCount, chunkBytes)) return;
+
+            candidates.sort(Comparator.comparingLong(chunk -> lastAccess.get(getChunkIndex(chunk))));
+            for (Chunk chunk : candidates) {
+                if (!isOverBudget(chunkCount, chunkBytes)) break;
+                final long index = getChunkIndex(chunk);
+                if (!lastSave.containsKey(index) || chunk.getLastChangeTime() > lastSave.get(index)) {
+                    // Dirty, save before dropping it
+                    if (saves.size() >= MAX_SAVES_PER_PASS) continue;
+                    saving.add(index);
+                    saves.add(chunk);
+                } else {
+                    unloads.add(chunk);
+                }
+                chunkCount--;
+                if (maxChunkBytes > 0) chunkBytes -= estimateChunkBytes(chunk);
+            }
+        }
+        for (Chunk chunk : unloads) unloadIfUnused(chunk, chunk.getLastChangeTime());
+        for (Chunk chunk : saves) saveThenUnload(chunk);
+    }
+
+    @Override
+    public synchronized void unloadChunk(@NotNull Chunk chunk) {
+        super.unloadChunk(chunk);
+        final long index = getChunkIndex(chunk);
+        lastAccess.remove(index);
+        lastSave.remove(index);
+    }
+
+    private void saveThenUnload(@NotNull Chunk chunk) {
+        final long index = getChunkIndex(chunk);
+        final long lastChange = chunk.getLastChangeTime();
+        // The chunk loader may save on the calling thread, keep it off the tick thread
+        CompletableFuture.supplyAsync(() -> saveChunkToStorage(chunk))
+                .thenCompose(future -> future)
+                .whenComplete((result, throwable) -> scheduleNextTick(instance -> {
+                    synchronized (this) {
+                        saving.remove(index);
+                        if (throwable != null) {
+                            MinecraftServer.getExceptionManager().handleException(throwable);
+                            return;
+                        }
+                        if (chunk.isLoaded()) lastSave.put(index, lastChange);
+                    }
+                    unloadIfUnused(chunk, lastChange);
+                }));
+    }
+
+    private synchronized void unloadIfUnused(@NotNull Chunk chunk, long savedChange) {
+        // A player may have started viewing or modifying the chunk while it was being saved,
+        // a modified chunk is dirty again and will be saved by a later eviction
+        if (!chunk.isLoaded() || !chunk.getViewers().isEmpty()) return;
+        if (chunk.getLastChangeTime() != savedChange) return;
+        unloadChunk(chunk);
+    }
+
+    private void onChunkLoad(@NotNull InstanceChunkLoadEvent event) {
+        final Chunk chunk = getChunk(event.getChunkX(), event.getChunkZ());
+        if (chunk == null || !Boolean.TRUE.equals(chunk.getTag(SOTAChunkLoader.LOADED_TAG))) return;
+        // Read from storage and untouched, so already saved
+        chunk.removeTag(SOTAChunkLoader.LOADED_TAG);
+        synchronized (this) {
+            lastSave.put(getChunkIndex(chunk), chunk.getLastChangeTime());
+        }
+    }
+
+    private boolean isOverBudget(int chunkCount, long chunkBytes) {
+        return (maxChunks > 0 && chunkCount > maxChunks) ||
+                (maxChunkBytes > 0 && chunkBytes > maxChunkBytes);
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static long estimateChunkBytes(@NotNull Chunk chunk) {
+        long bytes = 0;
+        for (Section section : chunk.getSections()) {
+            bytes += estimatePaletteBytes(section.blockPalette());
+            bytes += estimatePaletteBytes(section.biomePalette());
+            bytes += section.getSkyLight().length;
+            bytes += section.getBlockLight().length;
+        }
+        return bytes;
+    }
+
+    private static long estimatePaletteBytes(@NotNull Palette palette) {
+        return ((long) palette.maxSize() * palette.bitsPerEntry() + 7) / 8;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    /**
+     * Sets the maximum amount of loaded chunks, 0 to disable the limit.
+     */
+    public void setMaxChunks(int maxChunks) {
+        this.maxChunks = Math.max(0, maxChunks);
+    }
+
+    public long getMaxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    /**
+     * Sets the estimated maximum memory used by loaded chunks in bytes, 0 to disable the limit.
+     */
+    public void setMaxChunkBytes(long maxChunkBytes) {
+        this.maxChunkBytes = Math.max(0, maxChunkBytes);
+    }
+
+    public int getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    /**
+     * Sets the amount of ticks between two budget checks.
+     */
+    public void setEvictionInterval(int evictionInterval) {
+        this.evictionInterval = Math.max(1, evictionInterval);
+    }
+
+    public @NotNull SOTAChunkSender getChunkSender() {
+        return chunkSender;
+    }
+
+    /**
+     * Sets the bytes of chunk packets sent to each player per tick, 0 to send chunks as soon as they are requested
+     * (default). 64 KiB is a reasonable starting point.
+     */
+    public void setChunkSendBudget(int bytesPerTick) {
+        this.chunkSender.setBytesPerTick(Math.max(0, bytesPerTick));
+    }
+
+    public int getPrefetchPerTick() {
+        return prefetchPerTick;
+    }
+
+    /**
+     * Sets the maximum amount of chunk loads started each tick ahead of moving players, 0 to disable prefetching.
+     */
+    public void setPrefetchPerTick(int prefetchPerTick) {
+        this.prefetchPerTick = Math.max(0, prefetchPerTick);
+        this.prefetcher.setLoadsPerTick(this.prefetchPerTick);
+    }
+
+    /**
+     * Sets the maximum amount of prefetched chunks being loaded at the same time.
+     */
+    public void setPrefetchInFlight(int prefetchInFlight) {
+        this.prefetcher.setMaxInFlight(Math.max(1, prefetchInFlight));
+    }
+
+    /**
+     * Sets how many ticks ahead the position of moving players is predicted.
+     */
+    public void setPrefetchLookahead(int lookaheadTicks) {
+        this.prefetcher.setLookaheadTicks(Math.max(1, lookaheadTicks));
     }
 }
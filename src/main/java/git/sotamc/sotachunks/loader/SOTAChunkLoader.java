@@ -1,9 +1,14 @@
 package git.sotamc.sotachunks.loader;
 
+import git.sotamc.sotachunks.cache.SOTAPacketCache;
+import git.sotamc.sotachunks.chunk.SOTAChunk;
+import git.sotamc.sotachunks.metrics.SOTAHistogram;
+import git.sotamc.sotachunks.metrics.SOTAMetrics;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.instance.*;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.instance.block.BlockHandler;
+import net.minestom.server.tag.Tag;
 import net.minestom.server.utils.NamespaceID;
 import net.minestom.server.utils.async.AsyncUtils;
 import net.minestom.server.world.biomes.Biome;
@@ -24,22 +29,40 @@ import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 
 public class SOTAChunkLoader implements IChunkLoader {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(SOTAChunkLoader.class);
     private static final Biome BIOME = Biome.PLAINS;
+    /**
+     * Set on chunks read from a region file, until the instance records them as saved.
+     */
+    public static final Tag<Boolean> LOADED_TAG = Tag.Boolean("sotachunks:loaded");
+    private static final SOTAHistogram LOAD_TIME = SOTAMetrics.global().histogram("loader.load");
+    private static final SOTAHistogram SAVE_TIME = SOTAMetrics.global().histogram("loader.save");
+    private static final LongAdder REGION_HITS = SOTAMetrics.global().counter("loader.region.hit");
+    private static final LongAdder REGION_MISSES = SOTAMetrics.global().counter("loader.region.miss");
 
     private final Map<String, RegionFile> alreadyLoaded = new ConcurrentHashMap<>();
     private final Path path;
     private final Path levelPath;
     private final Path regionPath;
+    private final @Nullable SOTAPacketCache packetCache;
 
     public SOTAChunkLoader(@NotNull Path path) {
+        this(path, null);
+    }
+
+    /**
+     * @param packetCache persisted packets served by loaded {@link SOTAChunk}s until they are modified, for read-only maps
+     */
+    public SOTAChunkLoader(@NotNull Path path, @Nullable SOTAPacketCache packetCache) {
         this.path = path;
         this.levelPath = path.resolve("level.dat");
         this.regionPath = path.resolve("region");
+        this.packetCache = packetCache;
     }
 
     @Override
@@ -63,10 +86,13 @@ public class SOTAChunkLoader implements IChunkLoader {
             // No world folder
             return CompletableFuture.completedFuture(null);
         }
+        final long start = System.nanoTime();
         try {
             return loadMCA(instance, chunkX, chunkZ);
         } catch (Exception e) {
             MinecraftServer.getExceptionManager().handleException(e);
+        } finally {
+            LOAD_TIME.recordSince(start);
         }
         return CompletableFuture.completedFuture(null);
     }
@@ -79,7 +105,9 @@ public class SOTAChunkLoader implements IChunkLoader {
         if (fileChunk == null)
             return CompletableFuture.completedFuture(null);
 
-        Chunk chunk = new DynamicChunk(instance, chunkX, chunkZ);
+        Chunk chunk = instance instanceof InstanceContainer container ?
+                container.getChunkSupplier().createChunk(instance, chunkX, chunkZ) :
+                new DynamicChunk(instance, chunkX, chunkZ);
         if(fileChunk.getMinY() < instance.getDimensionType().getMinY()) {
             throw new AnvilException(
                     String.format("Trying to load chunk with minY = %d, but instance dimension type (%s) has a minY of %d",
@@ -132,13 +160,27 @@ public class SOTAChunkLoader implements IChunkLoader {
             section.setBlockLight(chunkSection.getBlockLights());
         }
         mcaFile.forget(fileChunk);
+        chunk.setTag(LOADED_TAG, true);
+        if (packetCache != null && chunk instanceof SOTAChunk sotaChunk) {
+            final Long contentHash = packetCache.contentHash(
+                    regionPath.resolve(RegionFile.Companion.createFileName(CoordinatesKt.chunkToRegion(chunkX), CoordinatesKt.chunkToRegion(chunkZ))),
+                    chunkX, chunkZ, instance.getDimensionType().getMinY(), instance.getDimensionType().getMaxY());
+            if (contentHash != null) sotaChunk.attachPacketCache(packetCache, contentHash);
+        }
         return CompletableFuture.completedFuture(chunk);
     }
 
     private @Nullable RegionFile getMCAFile(Instance instance, int chunkX, int chunkZ) {
         final int regionX = CoordinatesKt.chunkToRegion(chunkX);
         final int regionZ = CoordinatesKt.chunkToRegion(chunkZ);
-        return alreadyLoaded.computeIfAbsent(RegionFile.Companion.createFileName(regionX, regionZ), n -> {
+        final String fileName = RegionFile.Companion.createFileName(regionX, regionZ);
+        final RegionFile loaded = alreadyLoaded.get(fileName);
+        if (loaded != null) {
+            REGION_HITS.increment();
+            return loaded;
+        }
+        REGION_MISSES.increment();
+        return alreadyLoaded.computeIfAbsent(fileName, n -> {
             try {
                 final Path regionPath = this.regionPath.resolve(n);
                 if (!Files.exists(regionPath)) {
@@ -228,6 +270,15 @@ public class SOTAChunkLoader implements IChunkLoader {
 
     @Override
     public @NotNull CompletableFuture<Void> saveChunk(@NotNull Chunk chunk) {
+        final long start = System.nanoTime();
+        try {
+            return saveMCA(chunk);
+        } finally {
+            SAVE_TIME.recordSince(start);
+        }
+    }
+
+    private @NotNull CompletableFuture<Void> saveMCA(@NotNull Chunk chunk) {
         final int chunkX = chunk.getChunkX();
         final int chunkZ = chunk.getChunkZ();
         RegionFile mcaFile;
@@ -0,0 +1,88 @@
+package git.sotamc.sotachunks.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class SOTAMetrics {
+
+    /* Registry
+        Metrics are created once (usually in static fields) and updated without locking: counters are
+        LongAdders, histograms are SOTAHistograms and gauges are read when a snapshot is taken.
+
+        Names used by SOTAChunks :
+        loader.load, loader.save : Chunk load and save latency (ns)
+        loader.region.hit, loader.region.miss : Region file cache lookups
+        chunk.packet.rebuild, chunk.light.rebuild : Chunk and light packet build time (ns), count = rebuilds
+        chunk.tick : Chunk tick time (ns), only for chunks with tickable blocks
+        sender.bytes : Chunk and light packet bytes sent by SOTAChunkSenders
+    */
+
+    private static final SOTAMetrics GLOBAL = new SOTAMetrics();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, SOTAHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final List<SOTAMetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    public static @NotNull SOTAMetrics global() {
+        return GLOBAL;
+    }
+
+    public @NotNull LongAdder counter(@NotNull String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public @NotNull SOTAHistogram histogram(@NotNull String name) {
+        return histograms.computeIfAbsent(name, n -> new SOTAHistogram());
+    }
+
+    /**
+     * Registers a value read on every snapshot, replacing any gauge with the same name.
+     */
+    public void gauge(@NotNull String name, @NotNull LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public void removeGauge(@NotNull String name) {
+        gauges.remove(name);
+    }
+
+    public @NotNull SOTAMetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+        Map<String, SOTAHistogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new SOTAMetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    public void addExporter(@NotNull SOTAMetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    public void removeExporter(@NotNull SOTAMetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Takes a snapshot and hands it to every exporter, e.g. from a repeating scheduler task.
+     */
+    public void export() {
+        if (exporters.isEmpty()) return;
+        final SOTAMetricsSnapshot snapshot = snapshot();
+        for (SOTAMetricsExporter exporter : exporters) exporter.export(snapshot);
+    }
+
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(SOTAHistogram::reset);
+    }
+}
@@ -0,0 +1,24 @@
+package git.sotamc.sotachunks.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+@FunctionalInterface
+public interface SOTAMetricsExporter {
+
+    void export(@NotNull SOTAMetricsSnapshot snapshot);
+
+    /**
+     * Logs every metric at info level, histograms in microseconds.
+     */
+    static @NotNull SOTAMetricsExporter logging(@NotNull Logger logger) {
+        return snapshot -> {
+            snapshot.counters().forEach((name, value) -> logger.info("{} = {}", name, value));
+            snapshot.gauges().forEach((name, value) -> logger.info("{} = {}", name, value));
+            snapshot.histograms().forEach((name, histogram) -> logger.info(
+                    "{} : count={} mean={}us p50={}us p99={}us max={}us", name, histogram.count(),
+                    Math.round(histogram.mean() / 1000), histogram.p50() / 1000, histogram.p99() / 1000,
+                    histogram.max() / 1000));
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package git.sotamc.sotachunks.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+public record SOTAMetricsSnapshot(long time,
+                                  @NotNull Map<String, Long> counters,
+                                  @NotNull Map<String, Long> gauges,
+                                  @NotNull Map<String, SOTAHistogram.Snapshot> histograms) {
+
+    public long counter(@NotNull String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    public long gauge(@NotNull String name) {
+        return gauges.getOrDefault(name, 0L);
+    }
+
+    public SOTAHistogram.@NotNull Snapshot histogram(@NotNull String name) {
+        final SOTAHistogram.Snapshot snapshot = histograms.get(name);
+        return snapshot != null ? snapshot : new SOTAHistogram.Snapshot(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if there was no lookup
+     */
+    public double ratio(@NotNull String hits, @NotNull String misses) {
+        final long hitCount = counter(hits);
+        final long total = hitCount + counter(misses);
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,201 @@
+package git.sotamc.sotachunks.sender;
+
+import git.sotamc.sotachunks.chunk.SOTAChunk;
+import git.sotamc.sotachunks.metrics.SOTAMetrics;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.server.CachedPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.minestom.server.utils.chunk.ChunkUtils.getChunkCoordinate;
+import static net.minestom.server.utils.chunk.ChunkUtils.getChunkIndex;
+
+public class SOTAChunkSender {
+
+    /* Pacing
+        Chunk and light packets are queued per player and sent from the instance tick, nearest ring
+        of chunks first (spiral around the player), until the player byte budget for the tick is spent.
+        At least one packet is sent every tick so a player never stalls. With a budget of 0, packets are
+        sent right away and only counted.
+
+        A queued chunk packet already contains the light of the chunk, so a light update queued for
+        the same chunk is dropped, and a chunk queued over a light update replaces it.
+
+        The budget is static, the same for every player. Minestom does not expose how much of a connection
+        output is still pending, and the keep-alive latency is only sampled every few seconds (never for
+        fake players), too late to react to the join burst. 64 KiB per tick is about 10 Mbit/s.
+    */
+
+    private static final int ESTIMATED_CHUNK_SIZE = 16 * 1024;
+    private static final LongAdder BYTES_SENT = SOTAMetrics.global().counter("sender.bytes");
+
+    private final Instance instance;
+    private final Map<Player, PlayerQueue> queues = new ConcurrentHashMap<>();
+    private volatile int bytesPerTick;
+
+    public SOTAChunkSender(@NotNull Instance instance, int bytesPerTick) {
+        this.instance = instance;
+        this.bytesPerTick = bytesPerTick;
+    }
+
+    public boolean isEnabled() {
+        return bytesPerTick > 0;
+    }
+
+    /**
+     * Queues the chunk data for the player, or sends it right away if pacing is disabled.
+     */
+    public void queueChunk(@NotNull Player player, @NotNull SOTAChunk chunk) {
+        if (isEnabled()) {
+            queue(player).add(chunk, true);
+        } else {
+            queue(player).send(player, chunk.getChunkPacket());
+        }
+    }
+
+    /**
+     * Queues the chunk light for the player, or sends it right away if pacing is disabled.
+     */
+    public void queueLight(@NotNull Player player, @NotNull SOTAChunk chunk) {
+        if (isEnabled()) {
+            queue(player).add(chunk, false);
+        } else {
+            queue(player).send(player, chunk.getLightPacket());
+        }
+    }
+
+    public void tick() {
+        queues.entrySet().removeIf(entry -> entry.getKey().getInstance() != instance || !entry.getKey().isOnline());
+        final int budget = bytesPerTick;
+        queues.forEach((player, queue) -> queue.drain(player, budget));
+    }
+
+    /**
+     * @return the amount of chunk and light packets waiting to be sent to the player
+     */
+    public int getPending(@NotNull Player player) {
+        final PlayerQueue queue = queues.get(player);
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * @return the bytes of chunk and light packets sent to the player since it entered the instance
+     */
+    public long getBytesSent(@NotNull Player player) {
+        final PlayerQueue queue = queues.get(player);
+        return queue != null ? queue.bytesSent.sum() : 0;
+    }
+
+    public int getBytesPerTick() {
+        return bytesPerTick;
+    }
+
+    public void setBytesPerTick(int bytesPerTick) {
+        this.bytesPerTick = bytesPerTick;
+    }
+
+    private PlayerQueue queue(Player player) {
+        return queues.computeIfAbsent(player, p -> new PlayerQueue());
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static int packetSize(@NotNull CachedPacket packet) {
+        final ByteBuffer body = packet.body();
+        return body != null ? body.remaining() : ESTIMATED_CHUNK_SIZE;
+    }
+
+    private record Entry(SOTAChunk chunk, boolean data) {
+    }
+
+    private static final class PlayerQueue {
+        private final Long2ObjectLinkedOpenHashMap<Entry> pending = new Long2ObjectLinkedOpenHashMap<>();
+        private final LongAdder bytesSent = new LongAdder();
+
+        private synchronized void add(SOTAChunk chunk, boolean data) {
+            final long index = getChunkIndex(chunk.getChunkX(), chunk.getChunkZ());
+            final Entry entry = pending.get(index);
+            // Already covered, unless the chunk was reloaded since it was queued
+            if (entry != null && entry.chunk == chunk && (entry.data || !data)) return;
+            pending.put(index, new Entry(chunk, data));
+        }
+
+        private void send(Player player, CachedPacket packet) {
+            final int size = packetSize(packet);
+            player.sendPacket(packet);
+            bytesSent.add(size);
+            BYTES_SENT.add(size);
+        }
+
+        private synchronized int size() {
+            return pending.size();
+        }
+
+        private void drain(Player player, int bytesPerTick) {
+            final List<Entry> entries;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                entries = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            final Point position = player.getPosition();
+            final int chunkX = getChunkCoordinate(position.x());
+            final int chunkZ = getChunkCoordinate(position.z());
+            final int viewDistance = MinecraftServer.getChunkViewDistance();
+            entries.sort(Comparator.<Entry>comparingInt(entry -> ring(entry.chunk, chunkX, chunkZ))
+                    .thenComparingInt(entry -> distance(entry.chunk, chunkX, chunkZ)));
+
+            int sent = 0;
+            int i = 0;
+            for (; i < entries.size(); i++) {
+                final Entry entry = entries.get(i);
+                final SOTAChunk chunk = entry.chunk;
+                // Skip chunks which left the player view while queued
+                if (!chunk.isLoaded() || chunk.getInstance() != player.getInstance() ||
+                        ring(chunk, chunkX, chunkZ) > viewDistance) continue;
+                final CachedPacket packet = entry.data ? chunk.getChunkPacket() : chunk.getLightPacket();
+                final int size = packetSize(packet);
+                // A budget of 0 (pacing turned off meanwhile) flushes the queue
+                if (bytesPerTick > 0 && sent > 0 && sent + size > bytesPerTick) break;
+                player.sendPacket(packet);
+                sent += size;
+            }
+            bytesSent.add(sent);
+            BYTES_SENT.add(sent);
+            if (i < entries.size()) {
+                // Requeue the rest, keeping anything queued meanwhile
+                synchronized (this) {
+                    for (; i < entries.size(); i++) {
+                        final Entry entry = entries.get(i);
+                        final long index = getChunkIndex(entry.chunk.getChunkX(), entry.chunk.getChunkZ());
+                        final Entry newer = pending.get(index);
+                        if (newer == null || (newer.chunk == entry.chunk && entry.data && !newer.data)) {
+                            pending.put(index, entry);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static int ring(SOTAChunk chunk, int chunkX, int chunkZ) {
+            return Math.max(Math.abs(chunk.getChunkX() - chunkX), Math.abs(chunk.getChunkZ() - chunkZ));
+        }
+
+        private static int distance(SOTAChunk chunk, int chunkX, int chunkZ) {
+            final int dx = chunk.getChunkX() - chunkX;
+            final int dz = chunk.getChunkZ() - chunkZ;
+            return dx * dx + dz * dz;
+        }
+    }
+}
@@ -1,62 +0,0 @@
-package git.sotamc.sotachunks;
-
-import git.sotamc.sotachunks.supplier.SOTAChunkSupplier;
-import net.minestom.server.MinecraftServer;
-import net.minestom.server.coordinate.Pos;
-import net.minestom.server.entity.GameMode;
-import net.minestom.server.entity.Player;
-import net.minestom.server.event.GlobalEventHandler;
-import net.minestom.server.event.player.PlayerLoginEvent;
-import net.minestom.server.instance.*;
-import net.minestom.server.instance.batch.ChunkBatch;
-import net.minestom.server.instance.block.Block;
-import org.jetbrains.annotations.NotNull;
-
-import java.util.List;
-
-public class SOTALightingTest {
-    public static void main(String[] args) {
-        // Initialization
-        MinecraftServer minecraftServer = MinecraftServer.init();
-
-        InstanceManager instanceManager = MinecraftServer.getInstanceManager();
-        // Create the instance
-        InstanceContainer instanceContainer = instanceManager.createInstanceContainer();
-        // Set the ChunkGenerator
-        instanceContainer.setChunkGenerator(new GeneratorDemo());
-        instanceContainer.setChunkSupplier(new SOTAChunkSupplier());
-        instanceContainer.setChunkLoader(new AnvilLoader("instances/test"));
-
-        // Add an event callback to specify the spawning instance (and the spawn position)
-        GlobalEventHandler globalEventHandler = MinecraftServer.getGlobalEventHandler();
-        globalEventHandler.addListener(PlayerLoginEvent.class, event -> {
-            final Player player = event.getPlayer();
-            event.setSpawningInstance(instanceContainer);
-            player.setRespawnPoint(new Pos(0, 42, 0));
-            player.setGameMode(GameMode.CREATIVE);
-        });
-
-        // Start the server on port 25565
-        minecraftServer.start("0.0.0.0", 25565);
-    }
-
-    private static class GeneratorDemo implements ChunkGenerator {
-
-        @Override
-        public void generateChunkData(@NotNull ChunkBatch batch, int chunkX, int chunkZ) {
-            // Set chunk blocks
-            for (byte x = 0; x < Chunk.CHUNK_SIZE_X; x++) {
-                for (byte z = 0; z < Chunk.CHUNK_SIZE_Z; z++) {
-                    for (byte y = 0; y < 40; y++) {
-                        batch.setBlock(x, y, z, Block.STONE);
-                    }
-                }
-            }
-        }
-
-        @Override
-        public List<ChunkPopulator> getPopulators() {
-            return null;
-        }
-    }
-}
@@ -0,0 +1,230 @@
+package git.sotamc.sotachunks;
+
+import git.sotamc.sotachunks.instance.SOTAInstance;
+import git.sotamc.sotachunks.loader.SOTAChunkLoader;
+import git.sotamc.sotachunks.metrics.SOTAHistogram;
+import git.sotamc.sotachunks.metrics.SOTAMetrics;
+import git.sotamc.sotachunks.metrics.SOTAMetricsSnapshot;
+import git.sotamc.sotachunks.supplier.SOTAChunkSupplier;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.GameMode;
+import net.minestom.server.entity.Player;
+import net.minestom.server.entity.fakeplayer.FakePlayer;
+import net.minestom.server.entity.fakeplayer.FakePlayerController;
+import net.minestom.server.event.GlobalEventHandler;
+import net.minestom.server.event.instance.InstanceChunkLoadEvent;
+import net.minestom.server.event.instance.InstanceTickEvent;
+import net.minestom.server.event.player.PlayerLoginEvent;
+import net.minestom.server.event.server.ServerTickMonitorEvent;
+import net.minestom.server.instance.*;
+import net.minestom.server.instance.batch.ChunkBatch;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.block.BlockFace;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import net.minestom.server.network.packet.client.play.ClientPlayerBlockPlacementPacket;
+import net.minestom.server.network.packet.client.play.ClientPlayerPositionPacket;
+import net.minestom.server.world.DimensionType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Headless load test: boots a {@link SOTAInstance} with {@link SOTAChunkSupplier} and {@link SOTAChunkLoader}, spawns
+ * fake players which move, build and break blocks, then prints TPS, tick time percentiles, chunk load throughput and
+ * bytes sent per player. The server only binds to the loopback interface, no client is needed.
+ * <p>
+ * Options (all optional) : --players=20 --warmup=10 --seconds=60 --seed=1 --view-distance=8 --world=path
+ * --prefetch=0 --send-budget=65536 --max-chunks=0
+ */
+public class SOTALoadHarness {
+
+    private static final int GROUND_HEIGHT = 40;
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final int playerCount = intOption(options, "players", 20);
+        final int warmupSeconds = intOption(options, "warmup", 10);
+        final int seconds = intOption(options, "seconds", 60);
+        final long seed = intOption(options, "seed", 1);
+        final boolean temporaryWorld = !options.containsKey("world");
+        final Path worldPath = temporaryWorld ?
+                Files.createTempDirectory("sotachunks-harness") : Path.of(options.get("world"));
+
+        // Initialization
+        MinecraftServer minecraftServer = MinecraftServer.init();
+        MinecraftServer.setChunkViewDistance(intOption(options, "view-distance", 8));
+
+        SOTAInstance instance = new SOTAInstance(UUID.randomUUID(), DimensionType.OVERWORLD, new SOTAChunkLoader(worldPath));
+        instance.setChunkSupplier(new SOTAChunkSupplier());
+        instance.setChunkGenerator(new GeneratorDemo());
+        instance.setPrefetchPerTick(intOption(options, "prefetch", 0));
+        instance.setChunkSendBudget(intOption(options, "send-budget", 64 * 1024));
+        instance.setMaxChunks(intOption(options, "max-chunks", 0));
+        MinecraftServer.getInstanceManager().registerInstance(instance);
+
+        // Measurements
+        final SOTAHistogram tickTime = new SOTAHistogram();
+        final LongAdder ticks = new LongAdder();
+        final LongAdder chunkLoads = new LongAdder();
+        final Map<FakePlayer, Bot> bots = new ConcurrentHashMap<>();
+        final Random random = new Random(seed);
+
+        GlobalEventHandler globalEventHandler = MinecraftServer.getGlobalEventHandler();
+        globalEventHandler.addListener(PlayerLoginEvent.class, event -> {
+            final Player player = event.getPlayer();
+            event.setSpawningInstance(instance);
+            player.setRespawnPoint(new Pos(0, GROUND_HEIGHT, 0));
+            player.setGameMode(GameMode.CREATIVE);
+        });
+        globalEventHandler.addListener(ServerTickMonitorEvent.class, event -> {
+            ticks.increment();
+            tickTime.record((long) (event.getTickMonitor().getTickTime() * 1_000_000));
+        });
+        globalEventHandler.addListener(InstanceChunkLoadEvent.class, event -> chunkLoads.increment());
+        globalEventHandler.addListener(InstanceTickEvent.class, event -> {
+            if (event.getInstance() != instance) return;
+            bots.forEach((player, bot) -> bot.tick(player, instance));
+        });
+
+        // Loopback only, reachable without any network
+        minecraftServer.start("127.0.0.1", 0);
+
+        final AtomicInteger spawned = new AtomicInteger();
+        for (int i = 0; i < playerCount; i++) {
+            final Bot bot = new Bot(new Random(random.nextLong()));
+            FakePlayer.initPlayer(UUID.randomUUID(), "bot" + i, player -> {
+                player.setItemInMainHand(ItemStack.of(Material.OAK_PLANKS));
+                bots.put(player, bot);
+                spawned.incrementAndGet();
+            });
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        // Bytes sent during warmup are not part of the measured window
+        final Map<FakePlayer, Long> warmupBytes = new HashMap<>();
+        bots.keySet().forEach(player -> warmupBytes.put(player, instance.getChunkSender().getBytesSent(player)));
+        SOTAMetrics.global().reset();
+        tickTime.reset();
+        ticks.reset();
+        chunkLoads.reset();
+        final long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // Report
+        final SOTAHistogram.Snapshot tick = tickTime.snapshot();
+        final SOTAMetricsSnapshot metrics = SOTAMetrics.global().snapshot();
+        final long[] bytesSent = bots.keySet().stream()
+                .mapToLong(player -> instance.getChunkSender().getBytesSent(player) - warmupBytes.getOrDefault(player, 0L))
+                .sorted().toArray();
+        System.out.printf("players         : %d spawned / %d requested%n", spawned.get(), playerCount);
+        System.out.printf("tps             : %.2f%n", ticks.sum() / elapsed);
+        System.out.printf("tick time (ms)  : p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                tick.p50() / 1e6, tick.p90() / 1e6, tick.p99() / 1e6, tick.max() / 1e6);
+        System.out.printf("chunk loads/s   : %.1f (loader %.1f, region cache hit %.1f%%)%n",
+                chunkLoads.sum() / elapsed, metrics.histogram("loader.load").count() / elapsed,
+                metrics.ratio("loader.region.hit", "loader.region.miss") * 100);
+        System.out.printf("loaded chunks   : %d%n", instance.getChunks().size());
+        if (bytesSent.length > 0) {
+            System.out.printf("bytes/player    : mean=%d p50=%d max=%d%n",
+                    Arrays.stream(bytesSent).sum() / bytesSent.length,
+                    bytesSent[bytesSent.length / 2], bytesSent[bytesSent.length - 1]);
+        }
+        MinecraftServer.stopCleanly();
+        if (temporaryWorld) deleteDirectory(worldPath);
+        System.exit(0);
+    }
+
+    /**
+     * Walks or flies in a straight line, turning now and then, and places or breaks a block around itself every few
+     * ticks. Everything goes through the fake player controller, so the server handles the same packets as for a client.
+     */
+    private static final class Bot {
+        private final Random random;
+        private final double speed;
+        private double angle;
+        private int ticks;
+
+        private Bot(Random random) {
+            this.random = random;
+            // From walking to fast elytra flight, in blocks per tick
+            this.speed = 0.2 + random.nextDouble() * 2.5;
+            this.angle = random.nextDouble() * Math.PI * 2;
+        }
+
+        private void tick(FakePlayer player, Instance instance) {
+            if (player.getInstance() != instance) return;
+            final FakePlayerController controller = player.getController();
+            ticks++;
+            if (random.nextInt(200) == 0) angle += (random.nextDouble() - 0.5) * Math.PI;
+            final Pos position = player.getPosition();
+            controller.sendPacket(new ClientPlayerPositionPacket(
+                    position.add(Math.cos(angle) * speed, 0, Math.sin(angle) * speed).withY(GROUND_HEIGHT), true));
+
+            if (ticks % 10 != 0) return;
+            final int x = position.blockX() + random.nextInt(9) - 4;
+            final int z = position.blockZ() + random.nextInt(9) - 4;
+            if (!instance.isChunkLoaded(x >> 4, z >> 4)) return;
+            // Against the top face of the ground, creative players break blocks instantly
+            final Vec ground = new Vec(x, GROUND_HEIGHT - 1, z);
+            if (random.nextBoolean()) {
+                controller.sendPacket(new ClientPlayerBlockPlacementPacket(Player.Hand.MAIN, ground, BlockFace.TOP,
+                        0.5f, 1f, 0.5f, false));
+            } else {
+                controller.startDigging(ground, BlockFace.TOP);
+            }
+        }
+    }
+
+    private static class GeneratorDemo implements ChunkGenerator {
+
+        @Override
+        public void generateChunkData(@NotNull ChunkBatch batch, int chunkX, int chunkZ) {
+            // Set chunk blocks
+            for (byte x = 0; x < Chunk.CHUNK_SIZE_X; x++) {
+                for (byte z = 0; z < Chunk.CHUNK_SIZE_Z; z++) {
+                    for (byte y = 0; y < GROUND_HEIGHT; y++) {
+                        batch.setBlock(x, y, z, Block.STONE);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<ChunkPopulator> getPopulators() {
+            return null;
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument " + arg);
+            final int separator = arg.indexOf('=');
+            if (separator == -1) throw new IllegalArgumentException("Missing value for " + arg);
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        final String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}